@@ -0,0 +1,204 @@
+/*
+ * Copyright 2020 Vadzim Hushchanskou
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.hardnorth.common.config;
+
+import org.apache.commons.text.lookup.StringLookup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A {@link StringLookup} which caches values of a delegate lookup for a limited time.
+ * <p>
+ * Values can be prefetched in parallel, expired values are refreshed in background, a stale value is returned until the
+ * refresh completes. So a slow delegate lookup blocks a caller only on the very first request of a key, and not longer
+ * than the load timeout. If a value is not loaded in time, the stale value (or nothing) is returned.
+ */
+class CachingLookup implements StringLookup {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingLookup.class);
+
+    private static final int DEFAULT_THREAD_NUMBER = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * A shared pool for lookups without a specific executor. Its size is bounded, extra load tasks are queued.
+     */
+    static final Executor DEFAULT_EXECUTOR;
+
+    static {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_THREAD_NUMBER, DEFAULT_THREAD_NUMBER, 60L,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "config-lookup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        DEFAULT_EXECUTOR = executor;
+    }
+
+    private final StringLookup delegate;
+    private final long timeToLive;
+    private final long loadTimeout;
+    private final Executor executor;
+    private final Map<String, CacheEntry> cache;
+    private final Map<String, Future<Optional<String>>> loading = new ConcurrentHashMap<>();
+
+    public CachingLookup(final StringLookup lookup, final Duration ttl, final int maxSize) {
+        this(lookup, ttl, maxSize, ConfigLoader.DEFAULT_LOOKUP_TIMEOUT, DEFAULT_EXECUTOR);
+    }
+
+    public CachingLookup(final StringLookup lookup, final Duration ttl, final int maxSize, final Duration timeout,
+                         final Executor loadExecutor) {
+        delegate = lookup;
+        timeToLive = ttl.toNanos();
+        loadTimeout = timeout.toNanos();
+        executor = loadExecutor;
+        cache = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    private static class CacheEntry {
+        private final Optional<String> value;
+        private final long loadTime;
+
+        private CacheEntry(final Optional<String> entryValue) {
+            value = entryValue;
+            loadTime = System.nanoTime();
+        }
+    }
+
+    private CacheEntry getEntry(final String key) {
+        synchronized (cache) {
+            return cache.get(key);
+        }
+    }
+
+    private Optional<String> loadValue(final String key) {
+        Optional<String> value;
+        try {
+            value = Optional.ofNullable(delegate.lookup(key));
+        } catch (RuntimeException e) {
+            LOGGER.warn(String.format("Unable to resolve placeholder key '%s': %s", key, e.getMessage()), e);
+            // serve a stale value (or nothing) for another time-to-live period, so a broken lookup is not called on every
+            // property read
+            synchronized (cache) {
+                CacheEntry stale = cache.get(key);
+                CacheEntry entry = new CacheEntry(stale == null ? Optional.empty() : stale.value);
+                cache.put(key, entry);
+                return entry.value;
+            }
+        }
+        synchronized (cache) {
+            cache.put(key, new CacheEntry(value));
+        }
+        return value;
+    }
+
+    private Future<Optional<String>> load(final String key) {
+        FutureTask<Optional<String>> task = new FutureTask<>(() -> loadValue(key));
+        Future<Optional<String>> existing = loading.putIfAbsent(key, task);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    loading.remove(key, task);
+                }
+            });
+        } catch (RuntimeException e) {
+            loading.remove(key, task);
+            throw e;
+        }
+        return task;
+    }
+
+    private Optional<String> await(final String key, final Future<Optional<String>> future, final long deadline) {
+        try {
+            return future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            LOGGER.warn(String.format("Unable to resolve placeholder key '%s' in %d ms", key,
+                    TimeUnit.NANOSECONDS.toMillis(loadTimeout)));
+            // the load continues in background, until then serve a stale value (or nothing) without waiting
+            synchronized (cache) {
+                return cache.computeIfAbsent(key, k -> new CacheEntry(Optional.empty())).value;
+            }
+        }
+    }
+
+    /**
+     * Starts loading of all not cached keys in parallel.
+     *
+     * @param keys keys to load
+     * @return loading results by keys, use {@link #awaitAll(Map)} to wait for them
+     */
+    public Map<String, Future<Optional<String>>> prefetch(final Collection<String> keys) {
+        Map<String, Future<Optional<String>>> futures = new HashMap<>();
+        for (String key : keys) {
+            if (getEntry(key) == null) {
+                futures.put(key, load(key));
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * Waits for prefetch results, but not longer than the load timeout.
+     *
+     * @param futures results of a {@link #prefetch(Collection)} call
+     */
+    public void awaitAll(final Map<String, Future<Optional<String>>> futures) {
+        long deadline = System.nanoTime() + loadTimeout;
+        futures.forEach((key, future) -> await(key, future, deadline));
+    }
+
+    @Override
+    public String lookup(final String key) {
+        CacheEntry entry = getEntry(key);
+        if (entry == null) {
+            return await(key, load(key), System.nanoTime() + loadTimeout).orElse(null);
+        }
+        if (System.nanoTime() - entry.loadTime > timeToLive) {
+            load(key);
+        }
+        return entry.value.orElse(null);
+    }
+}
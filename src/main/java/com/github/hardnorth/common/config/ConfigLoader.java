@@ -15,6 +15,7 @@
  */
 package com.github.hardnorth.common.config;
 
+import org.apache.commons.text.lookup.StringLookup;
 import org.cfg4j.provider.ConfigurationProvider;
 import org.cfg4j.provider.ConfigurationProviderBuilder;
 import org.cfg4j.source.ConfigurationSource;
@@ -26,10 +27,15 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
 
 /**
  * A config loading class from various sources. Reads property files, environment and system variables.
@@ -45,8 +51,15 @@ public class ConfigLoader {
     public static final String ENVIRONMENT_PROPERTY = "env";
     public static final String DEFAULT_ENVIRONMENT_NAME = "default";
 
+    public static final Duration DEFAULT_LOOKUP_TTL = Duration.ofMinutes(5);
+    public static final int DEFAULT_LOOKUP_CACHE_SIZE = 1000;
+    public static final Duration DEFAULT_LOOKUP_TIMEOUT = Duration.ofSeconds(10);
+
+    private static final Duration MAX_LOOKUP_DURATION = Duration.ofNanos(Long.MAX_VALUE);
+
     private final ConfigurationSource defaultSource;
     private final ClassLoader classLoader;
+    private final Map<String, CachingLookup> lookups = new HashMap<>();
 
     /**
      * Constructor the Provider without default property values.
@@ -85,6 +98,80 @@ public class ConfigLoader {
         classLoader = contextClassLoader;
     }
 
+    /**
+     * Registers a {@link StringLookup} for placeholders with specific prefix, like <code>${prefix:key}</code>. Lookup
+     * results are cached for {@link #DEFAULT_LOOKUP_TTL} time.
+     *
+     * @param prefix a placeholder prefix, should not contain ':' character
+     * @param lookup a lookup which resolves placeholder keys
+     * @return the loader instance
+     * @see #registerLookup(String, StringLookup, Duration, int)
+     */
+    public ConfigLoader registerLookup(String prefix, StringLookup lookup) {
+        return registerLookup(prefix, lookup, DEFAULT_LOOKUP_TTL, DEFAULT_LOOKUP_CACHE_SIZE);
+    }
+
+    /**
+     * Registers a {@link StringLookup} for placeholders with specific prefix, like <code>${prefix:key}</code>. Lookup
+     * keys are loaded with a shared thread pool of a limited size, waiting for a value takes not longer than
+     * {@link #DEFAULT_LOOKUP_TIMEOUT}.
+     *
+     * @param prefix     a placeholder prefix, should not contain ':' character
+     * @param lookup     a lookup which resolves placeholder keys
+     * @param timeToLive a time after which a cached value will be refreshed
+     * @param cacheSize  maximum number of cached values
+     * @return the loader instance
+     * @see #registerLookup(String, StringLookup, Duration, int, Duration, Executor)
+     */
+    public ConfigLoader registerLookup(String prefix, StringLookup lookup, Duration timeToLive, int cacheSize) {
+        return registerLookup(prefix, lookup, timeToLive, cacheSize, DEFAULT_LOOKUP_TIMEOUT,
+                CachingLookup.DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * Registers a {@link StringLookup} for placeholders with specific prefix, like <code>${prefix:key}</code>.
+     * <p>
+     * All lookup keys found in property values are resolved in parallel on property load. Results are cached, expired
+     * values are refreshed in background, so a slow lookup does not block property getters. Placeholder default values
+     * are also supported: <code>${prefix:key:default value}</code>, so a lookup key can not contain ':' character.
+     * <p>
+     * The cache size should not be less than the number of distinct lookup keys in properties, otherwise evicted values
+     * are loaded again on property read.
+     *
+     * @param prefix      a placeholder prefix, should not contain ':' character
+     * @param lookup      a lookup which resolves placeholder keys
+     * @param timeToLive  a time after which a cached value will be refreshed
+     * @param cacheSize   maximum number of cached values
+     * @param loadTimeout maximum time to wait for a value, after that the value is loaded in background and a
+     *                    placeholder is resolved with a stale value or a default one
+     * @param executor    an executor to load lookup keys with
+     * @return the loader instance
+     */
+    public ConfigLoader registerLookup(String prefix, StringLookup lookup, Duration timeToLive, int cacheSize,
+                                       Duration loadTimeout, Executor executor) {
+        if (prefix == null || prefix.isEmpty() || prefix.indexOf(PlaceholderConfigSource.DEFAULT_VALUE_DELIMITER) >= 0) {
+            throw new IllegalArgumentException(String.format("Invalid lookup prefix: '%s'", prefix));
+        }
+        if (lookup == null) {
+            throw new IllegalArgumentException("Lookup should not be null");
+        }
+        if (timeToLive == null || timeToLive.isNegative() || timeToLive.compareTo(MAX_LOOKUP_DURATION) > 0) {
+            throw new IllegalArgumentException(String.format("Invalid lookup time-to-live: '%s'", timeToLive));
+        }
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid lookup cache size: '%d'", cacheSize));
+        }
+        if (loadTimeout == null || loadTimeout.isNegative() || loadTimeout.isZero()
+                || loadTimeout.compareTo(MAX_LOOKUP_DURATION) > 0) {
+            throw new IllegalArgumentException(String.format("Invalid lookup load timeout: '%s'", loadTimeout));
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Lookup executor should not be null");
+        }
+        lookups.put(prefix, new CachingLookup(lookup, timeToLive, cacheSize, loadTimeout, executor));
+        return this;
+    }
+
     private static String getEnvironmentFile(ConfigurationSource[] sources) {
         ConfigurationProvider config = new ConfigurationProviderBuilder()
                 .withConfigurationSource(new MergeConfigurationSource(sources)).build();
@@ -139,7 +226,7 @@ public class ConfigLoader {
         ConfigurationSource source = new MergeConfigurationSource(sources.toArray(new ConfigurationSource[0]));
 
         // Resolve placeholders inside properties
-        source = new PlaceholderConfigSource(source);
+        source = new PlaceholderConfigSource(source, new HashMap<>(lookups));
         final ConfigurationProvider result = new ConfigurationProviderBuilder().withConfigurationSource(source).build();
         return new InternalConfigProvider(result);
     }
@@ -165,5 +252,10 @@ public class ConfigLoader {
                 return defaultValue;
             }
         }
+
+        @Override
+        public ConfigSnapshot getSnapshot(Predicate<String> keyFilter) {
+            return new ConfigSnapshot(config.allConfigurationAsProperties(), keyFilter);
+        }
     }
 }
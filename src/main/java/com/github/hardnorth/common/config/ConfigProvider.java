@@ -15,6 +15,8 @@
  */
 package com.github.hardnorth.common.config;
 
+import java.util.function.Predicate;
+
 /**
  * An interface for reading properties.
  */
@@ -39,4 +41,26 @@ public interface ConfigProvider {
      * @return property value
      */
     <T> T getProperty(String key, Class<T> type, T defaultValue);
+
+    /**
+     * Returns a snapshot of all currently resolved property values. Use {@link ConfigSnapshot#getFingerprint()} and
+     * {@link ConfigSnapshot#diff(ConfigSnapshot)} to detect configuration changes.
+     * <p>
+     * The snapshot includes all environment variables and system properties, which usually differ from host to host,
+     * use {@link #getSnapshot(Predicate)} to compare configurations of different hosts.
+     *
+     * @return configuration snapshot
+     */
+    default ConfigSnapshot getSnapshot() {
+        return getSnapshot(key -> true);
+    }
+
+    /**
+     * Returns a snapshot of currently resolved property values, which names match the filter.
+     *
+     * @param keyFilter a filter of property names to include into the snapshot, e.g.
+     *                  <code>key -&gt; key.startsWith("my.application.")</code>
+     * @return configuration snapshot
+     */
+    ConfigSnapshot getSnapshot(Predicate<String> keyFilter);
 }
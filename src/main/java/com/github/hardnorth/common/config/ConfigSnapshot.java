@@ -0,0 +1,234 @@
+/*
+ * Copyright 2020 Vadzim Hushchanskou
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.hardnorth.common.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.function.Predicate;
+
+/**
+ * An immutable snapshot of resolved property values with a 128-bit fingerprint.
+ * <p>
+ * The fingerprint is a sum of per-property hashes, so it does not depend on property order and two snapshots with
+ * different fingerprints are guaranteed to differ. Equal fingerprints are a cheap way to check that two snapshots
+ * (e.g. taken on different nodes) are identical without comparing their values.
+ */
+public final class ConfigSnapshot {
+    private static final long FIRST_SEED = 0xcbf29ce484222325L;
+    private static final long FIRST_PRIME = 0x100000001b3L;
+    private static final long SECOND_SEED = 0x6a09e667f3bcc909L;
+    private static final long SECOND_PRIME = 0x9e3779b97f4a7c15L;
+
+    private final Map<String, String> values;
+    private final Map<String, Long> hashes;
+    private final long fingerprintHigh;
+    private final long fingerprintLow;
+
+    /**
+     * Constructs a snapshot from a set of {@link Properties}. All keys and values are converted to {@link String}.
+     *
+     * @param properties property values to take the snapshot of
+     */
+    public ConfigSnapshot(Properties properties) {
+        this(properties, key -> true);
+    }
+
+    /**
+     * Constructs a snapshot from a set of {@link Properties}, which keys match the filter. All keys and values are
+     * converted to {@link String}.
+     *
+     * @param properties property values to take the snapshot of
+     * @param keyFilter  a filter of property names to include into the snapshot
+     */
+    public ConfigSnapshot(Properties properties, Predicate<String> keyFilter) {
+        Map<String, String> valueMap = new HashMap<>();
+        Map<String, Long> hashMap = new HashMap<>();
+        long high = 0;
+        long low = 0;
+        for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            if (!keyFilter.test(key)) {
+                continue;
+            }
+            String value = String.valueOf(entry.getValue());
+            long first = hash(key, value, FIRST_SEED, FIRST_PRIME);
+            valueMap.put(key, value);
+            hashMap.put(key, first);
+            high += first;
+            low += hash(key, value, SECOND_SEED, SECOND_PRIME);
+        }
+        values = Collections.unmodifiableMap(valueMap);
+        hashes = hashMap;
+        fingerprintHigh = high;
+        fingerprintLow = low;
+    }
+
+    private static long hash(String key, String value, long seed, long prime) {
+        long result = seed;
+        result = (result ^ key.length()) * prime;
+        for (int i = 0; i < key.length(); i++) {
+            result = (result ^ key.charAt(i)) * prime;
+        }
+        result = (result ^ value.length()) * prime;
+        for (int i = 0; i < value.length(); i++) {
+            result = (result ^ value.charAt(i)) * prime;
+        }
+        // final avalanche, so per-property hashes are well distributed before they are summed
+        result = (result ^ (result >>> 30)) * 0xbf58476d1ce4e5b9L;
+        result = (result ^ (result >>> 27)) * 0x94d049bb133111ebL;
+        return result ^ (result >>> 31);
+    }
+
+    /**
+     * Returns the snapshot fingerprint as a 32 characters long hexadecimal string.
+     *
+     * @return 128-bit fingerprint
+     */
+    public String getFingerprint() {
+        return String.format("%016x%016x", fingerprintHigh, fingerprintLow);
+    }
+
+    /**
+     * Returns snapshot values.
+     *
+     * @return unmodifiable map of property names and values
+     */
+    public Map<String, String> getValues() {
+        return values;
+    }
+
+    /**
+     * Returns a list of properties which differ in two snapshots. Returns an empty list immediately if fingerprints of
+     * the snapshots are equal, otherwise compares per-property hashes and only reads values of differing properties.
+     *
+     * @param other a snapshot to compare with
+     * @return differences sorted by property name
+     */
+    public List<Difference> diff(ConfigSnapshot other) {
+        if (fingerprintMatches(other)) {
+            return Collections.emptyList();
+        }
+        List<Difference> result = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : hashes.entrySet()) {
+            String key = entry.getKey();
+            if (!entry.getValue().equals(other.hashes.get(key))) {
+                result.add(new Difference(key, values.get(key), other.values.get(key)));
+            }
+        }
+        for (String key : other.hashes.keySet()) {
+            if (!hashes.containsKey(key)) {
+                result.add(new Difference(key, null, other.values.get(key)));
+            }
+        }
+        result.sort(Comparator.comparing(Difference::getKey));
+        return result;
+    }
+
+    private boolean fingerprintMatches(ConfigSnapshot other) {
+        return fingerprintHigh == other.fingerprintHigh && fingerprintLow == other.fingerprintLow
+                && hashes.size() == other.hashes.size();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ConfigSnapshot that = (ConfigSnapshot) o;
+        return fingerprintMatches(that) && values.equals(that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(fingerprintHigh);
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigSnapshot{" + getFingerprint() + '}';
+    }
+
+    /**
+     * A property which value differs in two snapshots. Values may contain secrets, so they are not printed by
+     * {@link #toString()}.
+     */
+    public static final class Difference {
+        private final String key;
+        private final String value;
+        private final String otherValue;
+
+        private Difference(String propertyKey, String thisValue, String thatValue) {
+            key = propertyKey;
+            value = thisValue;
+            otherValue = thatValue;
+        }
+
+        /**
+         * @return property name
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return property value in the snapshot the diff was called on, or null if there is no such property
+         */
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * @return property value in the snapshot passed as an argument, or null if there is no such property
+         */
+        public String getOtherValue() {
+            return otherValue;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Difference that = (Difference) o;
+            return key.equals(that.key) && Objects.equals(value, that.value) && Objects.equals(otherValue, that.otherValue);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(key, value, otherValue);
+        }
+
+        @Override
+        public String toString() {
+            if (value == null) {
+                return key + ": added";
+            }
+            return otherValue == null ? key + ": removed" : key + ": changed";
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020 Vadzim Hushchanskou
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.hardnorth.common.config;
+
+import org.apache.commons.text.lookup.StringLookup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+
+/**
+ * A {@link StringLookup} which uses a key as a file path and returns the file content, e.g. a secret mounted into a
+ * container: <code>${file:/run/secrets/db}</code>. Trailing line breaks are removed. Returns null if there is no such
+ * file.
+ * <p>
+ * Character ':' separates a placeholder default value, so a file path can not contain it. E.g. Windows path
+ * <code>${file:C:\secrets\db}</code> is treated as file <code>C</code> with <code>\secrets\db</code> default value,
+ * use paths without a drive letter instead: <code>${file:/secrets/db}</code> is resolved against the current drive.
+ */
+public class FileStringLookup implements StringLookup {
+    public static final String PREFIX = "file";
+
+    @Override
+    public String lookup(String key) {
+        String content;
+        try {
+            content = new String(Files.readAllBytes(Paths.get(key)), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Unable to read file '%s': %s", key, e.getMessage()), e);
+        }
+        int end = content.length();
+        while (end > 0 && (content.charAt(end - 1) == '\n' || content.charAt(end - 1) == '\r')) {
+            end--;
+        }
+        return content.substring(0, end);
+    }
+}
@@ -17,17 +17,27 @@ package com.github.hardnorth.common.config;
 
 import org.apache.commons.text.StringSubstitutor;
 import org.apache.commons.text.lookup.StringLookup;
+import org.apache.commons.text.matcher.StringMatcher;
 import org.cfg4j.source.ConfigurationSource;
 import org.cfg4j.source.context.environment.Environment;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
  * A {@link ConfigurationSource} which reads property values, finds placeholders and try to resolve them.
  * <p>
+ * Placeholders with a registered prefix, like <code>${prefix:key}</code>, are resolved with a corresponding lookup
+ * instead of property values. Such lookups are prefetched in parallel before placeholder resolution.
+ * <p>
  * TODO: Make it more accurate with bash default values?
  */
 class PlaceholderConfigSource implements ConfigurationSource {
@@ -35,30 +45,95 @@ class PlaceholderConfigSource implements ConfigurationSource {
 
     public static final char PLACEHOLDER_KEY = '$';
 
+    private static final String PLACEHOLDER_PREFIX = PLACEHOLDER_KEY + "{";
+    private static final String ESCAPED_PLACEHOLDER_PREFIX = PLACEHOLDER_KEY + PLACEHOLDER_PREFIX;
+
     private final ConfigurationSource base;
+    private final Map<String, CachingLookup> lookups;
+    private final Pattern lookupPattern;
 
-    public PlaceholderConfigSource(final ConfigurationSource source) {
+    public PlaceholderConfigSource(final ConfigurationSource source, final Map<String, CachingLookup> prefixLookups) {
         base = source;
+        lookups = prefixLookups;
+        // skip escaped placeholders, like '$${prefix:key}', they are not resolved by the substitutor
+        lookupPattern = prefixLookups.isEmpty() ? null : Pattern.compile("(?<!\\$)\\$\\{("
+                + prefixLookups.keySet().stream().map(Pattern::quote).collect(Collectors.joining("|"))
+                + "):([^:$}]+)[:}]");
+    }
+
+    /**
+     * Escapes placeholders in a lookup result, since the substitutor resolves placeholders in variable values, but a
+     * value of a lookup (e.g. a secret) should be returned as is.
+     */
+    private static String escape(final String value) {
+        return value == null ? null : value.replace(PLACEHOLDER_PREFIX, ESCAPED_PLACEHOLDER_PREFIX);
     }
 
     private static class Lookup implements StringLookup {
         private final Properties source;
+        private final Map<String, CachingLookup> lookups;
 
-        public Lookup(final Properties from) {
+        public Lookup(final Properties from, final Map<String, CachingLookup> prefixLookups) {
             source = from;
+            lookups = prefixLookups;
         }
 
         @Override
         public String lookup(String key) {
+            int delimiterIndex = key.indexOf(DEFAULT_VALUE_DELIMITER);
+            if (delimiterIndex > 0) {
+                StringLookup prefixLookup = lookups.get(key.substring(0, delimiterIndex));
+                if (prefixLookup != null) {
+                    return escape(prefixLookup.lookup(key.substring(delimiterIndex + 1)));
+                }
+            }
             return source.getProperty(key);
         }
     }
 
+    /**
+     * Matches default value delimiter, but skips the one which follows a registered lookup prefix.
+     */
+    private static class ValueDelimiterMatcher implements StringMatcher {
+        private final Set<String> prefixes;
+
+        public ValueDelimiterMatcher(final Set<String> lookupPrefixes) {
+            prefixes = lookupPrefixes;
+        }
+
+        @Override
+        public int isMatch(char[] buffer, int start, int bufferStart, int bufferEnd) {
+            if (start >= bufferEnd || buffer[start] != DEFAULT_VALUE_DELIMITER) {
+                return 0;
+            }
+            // 'buffer' here is a variable name expression, so everything before the delimiter is a possible prefix
+            return prefixes.contains(new String(buffer, 0, start)) ? 0 : 1;
+        }
+    }
+
+    private void prefetch(final Properties source) {
+        if (lookupPattern == null) {
+            return;
+        }
+        Map<String, Set<String>> keys = new HashMap<>();
+        source.values().stream().filter(v -> v instanceof String).forEach(v -> {
+            Matcher matcher = lookupPattern.matcher((String) v);
+            while (matcher.find()) {
+                keys.computeIfAbsent(matcher.group(1), k -> new HashSet<>()).add(matcher.group(2));
+            }
+        });
+        // start all loads first, so lookups with different prefixes are also loaded in parallel
+        Map<CachingLookup, Map<String, Future<Optional<String>>>> futures = new HashMap<>();
+        keys.forEach((prefix, prefixKeys) -> futures.put(lookups.get(prefix), lookups.get(prefix).prefetch(prefixKeys)));
+        futures.forEach(CachingLookup::awaitAll);
+    }
+
     public Properties resolvePlaceholders(final Properties source) {
-        final Lookup lookup = new Lookup(source);
+        prefetch(source);
+        final Lookup lookup = new Lookup(source, lookups);
         final StringSubstitutor ssub = new StringSubstitutor(lookup);
         ssub.setEnableSubstitutionInVariables(true);
-        ssub.setValueDelimiter(DEFAULT_VALUE_DELIMITER);
+        ssub.setValueDelimiterMatcher(new ValueDelimiterMatcher(lookups.keySet()));
         Map<String, Object> processingResult = source.entrySet().stream().collect(Collectors.toMap(k -> (String) k.getKey(), v -> {
             Object value = v.getValue();
             boolean valueString = value instanceof String;
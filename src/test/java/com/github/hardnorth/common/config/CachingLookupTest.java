@@ -0,0 +1,195 @@
+/*
+ * Copyright 2020 Vadzim Hushchanskou
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.hardnorth.common.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class CachingLookupTest {
+
+    @Test
+    public void test_value_is_cached() {
+        AtomicInteger counter = new AtomicInteger();
+        CachingLookup lookup = new CachingLookup(key -> key + counter.incrementAndGet(), Duration.ofMinutes(1), 10);
+
+        assertThat(lookup.lookup("key"), equalTo("key1"));
+        assertThat(lookup.lookup("key"), equalTo("key1"));
+        assertThat(counter.get(), equalTo(1));
+    }
+
+    @Test
+    public void test_null_value_is_cached() {
+        AtomicInteger counter = new AtomicInteger();
+        CachingLookup lookup = new CachingLookup(key -> {
+            counter.incrementAndGet();
+            return null;
+        }, Duration.ofMinutes(1), 10);
+
+        assertThat(lookup.lookup("key"), nullValue());
+        assertThat(lookup.lookup("key"), nullValue());
+        assertThat(counter.get(), equalTo(1));
+    }
+
+    @Test
+    public void test_cache_size_limit() {
+        AtomicInteger counter = new AtomicInteger();
+        CachingLookup lookup = new CachingLookup(key -> key + counter.incrementAndGet(), Duration.ofMinutes(1), 2);
+
+        lookup.lookup("first");
+        lookup.lookup("second");
+        lookup.lookup("third");
+        assertThat(lookup.lookup("first"), equalTo("first4"));
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void test_expired_value_is_refreshed_in_background() throws InterruptedException {
+        AtomicInteger counter = new AtomicInteger();
+        CountDownLatch refreshStarted = new CountDownLatch(1);
+        CountDownLatch refreshAllowed = new CountDownLatch(1);
+        CachingLookup lookup = new CachingLookup(key -> {
+            if (counter.incrementAndGet() > 1) {
+                refreshStarted.countDown();
+                try {
+                    refreshAllowed.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return key + counter.get();
+        }, Duration.ZERO, 10);
+
+        assertThat(lookup.lookup("key"), equalTo("key1"));
+        Thread.sleep(1);
+        // the refresh is blocked, but the stale value is returned
+        assertThat(lookup.lookup("key"), equalTo("key1"));
+        assertThat(refreshStarted.await(5, TimeUnit.SECONDS), equalTo(Boolean.TRUE));
+        assertThat(lookup.lookup("key"), equalTo("key1"));
+
+        refreshAllowed.countDown();
+        String value;
+        do {
+            Thread.sleep(10);
+            value = lookup.lookup("key");
+        } while ("key1".equals(value));
+        assertThat(value, startsWith("key"));
+        assertThat(value, not(equalTo("key1")));
+    }
+
+    @Test
+    public void test_failed_lookup_is_not_propagated() {
+        AtomicInteger counter = new AtomicInteger();
+        CachingLookup lookup = new CachingLookup(key -> {
+            counter.incrementAndGet();
+            throw new IllegalStateException("lookup failure");
+        }, Duration.ofMinutes(1), 10);
+
+        assertThat(lookup.lookup("key"), nullValue());
+        assertThat(lookup.lookup("key"), nullValue());
+        assertThat(counter.get(), equalTo(1));
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void test_prefetch_loads_values_in_parallel() {
+        CountDownLatch latch = new CountDownLatch(3);
+        CachingLookup lookup = new CachingLookup(key -> {
+            latch.countDown();
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return key;
+        }, Duration.ofMinutes(1), 10);
+
+        lookup.awaitAll(lookup.prefetch(Arrays.asList("first", "second", "third")));
+        assertThat(lookup.lookup("second"), equalTo("second"));
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void test_failed_refresh_keeps_stale_value_for_another_period() throws InterruptedException {
+        AtomicInteger counter = new AtomicInteger();
+        CachingLookup lookup = new CachingLookup(key -> {
+            if (counter.incrementAndGet() > 1) {
+                throw new IllegalStateException("lookup failure");
+            }
+            return key;
+        }, Duration.ofMillis(300), 10);
+
+        assertThat(lookup.lookup("key"), equalTo("key"));
+        Thread.sleep(400);
+        // expired, triggers a failing background refresh
+        assertThat(lookup.lookup("key"), equalTo("key"));
+        while (counter.get() < 2) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(lookup.lookup("key"), equalTo("key"));
+        }
+        assertThat(counter.get(), equalTo(2));
+    }
+
+    @Test
+    public void test_custom_executor_is_used() {
+        AtomicInteger executions = new AtomicInteger();
+        CachingLookup lookup = new CachingLookup(key -> key, Duration.ofMinutes(1), 10, Duration.ofSeconds(10), command -> {
+            executions.incrementAndGet();
+            command.run();
+        });
+
+        lookup.awaitAll(lookup.prefetch(Arrays.asList("first", "second")));
+        assertThat(lookup.lookup("first"), equalTo("first"));
+        assertThat(executions.get(), equalTo(2));
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void test_hung_lookup_does_not_block_longer_than_timeout() {
+        CountDownLatch release = new CountDownLatch(1);
+        CachingLookup lookup = new CachingLookup(key -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return key;
+        }, Duration.ofMinutes(1), 10, Duration.ofMillis(200), CachingLookup.DEFAULT_EXECUTOR);
+        try {
+            lookup.awaitAll(lookup.prefetch(Arrays.asList("first", "second")));
+            assertThat(lookup.lookup("first"), nullValue());
+
+            long start = System.nanoTime();
+            assertThat(lookup.lookup("third"), nullValue());
+            assertThat(lookup.lookup("third"), nullValue());
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), lessThan(2000L));
+        } finally {
+            release.countDown();
+        }
+    }
+}
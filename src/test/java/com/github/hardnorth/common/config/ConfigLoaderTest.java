@@ -18,12 +18,21 @@ package com.github.hardnorth.common.config;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -222,6 +231,222 @@ public class ConfigLoaderTest {
         assertThat(stringValue, equalTo("my environment file value"));
     }
 
+    @Test
+    public void test_snapshot_contains_resolved_values() {
+        Properties props = new Properties();
+        props.setProperty(ConfigLoader.ENVIRONMENT_PROPERTY, "placeholder");
+        ConfigProvider provider = new ConfigLoader(props, getClass().getClassLoader()).get();
+
+        ConfigSnapshot snapshot = provider.getSnapshot();
+        assertThat(snapshot.getValues().get(PROPERTY_PREFIX + "placeholder.part.value.string"),
+                equalTo("this is my string property"));
+        assertThat(snapshot, equalTo(provider.getSnapshot()));
+    }
+
+    @Test
+    public void test_snapshot_reflects_system_property_change() {
+        String propertyName = PROPERTY_PREFIX + "snapshot.system.value";
+        Properties props = new Properties();
+        props.setProperty(ConfigLoader.ENVIRONMENT_PROPERTY, "placeholder");
+        ConfigProvider provider = new ConfigLoader(props, getClass().getClassLoader()).get();
+        try {
+            System.setProperty(propertyName, "first");
+            ConfigSnapshot first = provider.getSnapshot();
+            System.setProperty(propertyName, "second");
+            ConfigSnapshot second = provider.getSnapshot();
+
+            assertThat(provider.getProperty(propertyName, String.class), equalTo("second"));
+            assertThat(first.getFingerprint(), not(equalTo(second.getFingerprint())));
+            List<ConfigSnapshot.Difference> diff = first.diff(second);
+            assertThat(diff, hasSize(1));
+            assertThat(diff.get(0).getKey(), equalTo(propertyName));
+            assertThat(diff.get(0).getValue(), equalTo("first"));
+            assertThat(diff.get(0).getOtherValue(), equalTo("second"));
+        } finally {
+            System.clearProperty(propertyName);
+        }
+    }
+
+    @Test
+    public void test_scoped_snapshot() {
+        Properties props = new Properties();
+        props.setProperty(ConfigLoader.ENVIRONMENT_PROPERTY, "placeholder");
+        ConfigProvider provider = new ConfigLoader(props, getClass().getClassLoader()).get();
+
+        ConfigSnapshot snapshot = provider.getSnapshot(key -> key.startsWith(PROPERTY_PREFIX));
+        assertThat(snapshot.getValues().keySet(), everyItem(startsWith(PROPERTY_PREFIX)));
+        assertThat(snapshot.getValues(), hasEntry(PROPERTY_PREFIX + "placeholder.string.value", "my string property"));
+        assertThat(snapshot.getValues(), not(hasKey("STRING_VALUE")));
+    }
+
+    @Test
+    public void test_snapshot_fingerprint_change_detection() {
+        Properties props = new Properties();
+        props.setProperty(ConfigLoader.ENVIRONMENT_PROPERTY, "placeholder");
+        ConfigSnapshot first = new ConfigLoader(props, getClass().getClassLoader()).get().getSnapshot();
+        ConfigSnapshot second = new ConfigLoader(props, getClass().getClassLoader()).get().getSnapshot();
+        assertThat(first.getFingerprint(), equalTo(second.getFingerprint()));
+        assertThat(first.diff(second), empty());
+
+        props.setProperty(PROPERTY_PREFIX + "snapshot.value", "${STRING_VALUE}");
+        ConfigSnapshot changed = new ConfigLoader(props, getClass().getClassLoader()).get().getSnapshot();
+        assertThat(first.getFingerprint(), not(equalTo(changed.getFingerprint())));
+        List<ConfigSnapshot.Difference> diff = first.diff(changed);
+        assertThat(diff, hasSize(1));
+        assertThat(diff.get(0).getKey(), equalTo(PROPERTY_PREFIX + "snapshot.value"));
+        assertThat(diff.get(0).getValue(), nullValue());
+        assertThat(diff.get(0).getOtherValue(), equalTo("my string property"));
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void test_prefix_lookup_placeholders() {
+        Properties props = new Properties();
+        props.setProperty(ConfigLoader.ENVIRONMENT_PROPERTY, "lookup");
+        Set<String> requestedKeys = ConcurrentHashMap.newKeySet();
+        ConfigProvider provider = new ConfigLoader(props, getClass().getClassLoader()).registerLookup("stub", key -> {
+            requestedKeys.add(key);
+            return "missing".equals(key) ? null : key + " value";
+        }).get();
+
+        String stringValue = provider.getProperty(PROPERTY_PREFIX + "lookup.first", String.class);
+        assertThat(stringValue, equalTo("first value"));
+
+        stringValue = provider.getProperty(PROPERTY_PREFIX + "lookup.second", String.class);
+        assertThat(stringValue, equalTo("this is second value"));
+
+        stringValue = provider.getProperty(PROPERTY_PREFIX + "lookup.default", String.class);
+        assertThat(stringValue, equalTo("my default value"));
+
+        stringValue = provider.getProperty(PROPERTY_PREFIX + "lookup.nested", String.class);
+        assertThat(stringValue, equalTo("my string property value"));
+
+        stringValue = provider.getProperty(PROPERTY_PREFIX + "lookup.not.registered", String.class);
+        assertThat(stringValue, equalTo("my default value"));
+
+        stringValue = provider.getProperty(PROPERTY_PREFIX + "lookup.escaped", String.class);
+        assertThat(stringValue, equalTo("${stub:escaped}"));
+
+        assertThat(requestedKeys, containsInAnyOrder("first", "second", "missing", "my string property"));
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void test_prefix_lookups_are_prefetched_in_parallel() {
+        Properties props = new Properties();
+        props.setProperty(ConfigLoader.ENVIRONMENT_PROPERTY, "lookup");
+        // Each key waits for the other one, so the lookup completes only if both keys are requested simultaneously
+        CountDownLatch latch = new CountDownLatch(2);
+        ConfigProvider provider = new ConfigLoader(props, getClass().getClassLoader()).registerLookup("stub", key -> {
+            if ("first".equals(key) || "second".equals(key)) {
+                latch.countDown();
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return key;
+        }).get();
+
+        String stringValue = provider.getProperty(PROPERTY_PREFIX + "lookup.first", String.class);
+        assertThat(stringValue, equalTo("first"));
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void test_hung_prefix_lookup_falls_back_to_default_value() {
+        Properties props = new Properties();
+        props.setProperty(ConfigLoader.ENVIRONMENT_PROPERTY, "lookup");
+        CountDownLatch release = new CountDownLatch(1);
+        ConfigProvider provider = new ConfigLoader(props, getClass().getClassLoader()).registerLookup("stub", key -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return key;
+        }, ConfigLoader.DEFAULT_LOOKUP_TTL, ConfigLoader.DEFAULT_LOOKUP_CACHE_SIZE, Duration.ofMillis(200),
+                CachingLookup.DEFAULT_EXECUTOR).get();
+        try {
+            String stringValue = provider.getProperty(PROPERTY_PREFIX + "lookup.default", String.class);
+            assertThat(stringValue, equalTo("my default value"));
+
+            stringValue = provider.getProperty(PROPERTY_PREFIX + "lookup.first", String.class);
+            assertThat(stringValue, equalTo("${stub:first}"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void test_file_lookup_placeholder(@TempDir Path tempDir) throws IOException {
+        Path secret = tempDir.resolve("secret");
+        Files.write(secret, "my secret value\n".getBytes(StandardCharsets.UTF_8));
+        Properties props = new Properties();
+        props.setProperty(PROPERTY_PREFIX + "lookup.file", "${file:" + secret.toAbsolutePath() + "}");
+        props.setProperty(PROPERTY_PREFIX + "lookup.file.missing",
+                "${file:" + tempDir.resolve("missing").toAbsolutePath() + ":my default value}");
+        ConfigProvider provider = new ConfigLoader(props, getClass().getClassLoader())
+                .registerLookup(FileStringLookup.PREFIX, new FileStringLookup()).get();
+
+        String stringValue = provider.getProperty(PROPERTY_PREFIX + "lookup.file", String.class);
+        assertThat(stringValue, equalTo("my secret value"));
+
+        stringValue = provider.getProperty(PROPERTY_PREFIX + "lookup.file.missing", String.class);
+        assertThat(stringValue, equalTo("my default value"));
+    }
+
+    @Test
+    public void test_file_lookup_placeholder_value_is_not_resolved(@TempDir Path tempDir) throws IOException {
+        String secretValue = "s3cr${other}t $${escaped} ${db.password}";
+        Path secret = tempDir.resolve("secret");
+        Files.write(secret, secretValue.getBytes(StandardCharsets.UTF_8));
+        Properties props = new Properties();
+        props.setProperty("other", "x");
+        props.setProperty(PROPERTY_PREFIX + "lookup.file", "${file:" + secret.toAbsolutePath() + "}");
+        props.setProperty(PROPERTY_PREFIX + "lookup.file.part", "password: ${file:" + secret.toAbsolutePath() + "}");
+        props.setProperty(PROPERTY_PREFIX + "lookup.plain", "my plain value");
+        ConfigProvider provider = new ConfigLoader(props, getClass().getClassLoader())
+                .registerLookup(FileStringLookup.PREFIX, new FileStringLookup()).get();
+
+        String stringValue = provider.getProperty(PROPERTY_PREFIX + "lookup.file", String.class);
+        assertThat(stringValue, equalTo(secretValue));
+
+        stringValue = provider.getProperty(PROPERTY_PREFIX + "lookup.file.part", String.class);
+        assertThat(stringValue, equalTo("password: " + secretValue));
+
+        stringValue = provider.getProperty(PROPERTY_PREFIX + "lookup.plain", String.class);
+        assertThat(stringValue, equalTo("my plain value"));
+    }
+
+    @Test
+    public void test_invalid_lookup_prefix() {
+        ConfigLoader loader = new ConfigLoader(getClass().getClassLoader());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> loader.registerLookup("my:prefix", key -> key));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> loader.registerLookup("", key -> key));
+    }
+
+    @Test
+    public void test_invalid_lookup_cache_parameters() {
+        ConfigLoader loader = new ConfigLoader(getClass().getClassLoader());
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> loader.registerLookup("stub", key -> key, null, 10));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> loader.registerLookup("stub", key -> key, Duration.ofSeconds(-1), 10));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> loader.registerLookup("stub", key -> key, Duration.ofMinutes(1), 0));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> loader.registerLookup("stub", key -> key, Duration.ofSeconds(Long.MAX_VALUE), 10));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> loader.registerLookup("stub", key -> key, Duration.ofMinutes(1), 10, Duration.ZERO, Runnable::run));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> loader.registerLookup("stub", key -> key, Duration.ofMinutes(1), 10, null, Runnable::run));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> loader.registerLookup("stub", key -> key, Duration.ofMinutes(1), 10, Duration.ofSeconds(1), null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> loader.registerLookup("stub", null));
+    }
+
     @Test
     @Timeout(value = 10)
     public void test_environment_file_property_override_with_an_environment_variable() {
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 Vadzim Hushchanskou
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.hardnorth.common.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Properties;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ConfigSnapshotTest {
+
+    private static Properties properties(String... keyValues) {
+        Properties result = new Properties();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            result.setProperty(keyValues[i], keyValues[i + 1]);
+        }
+        return result;
+    }
+
+    @Test
+    public void test_fingerprint_does_not_depend_on_order() {
+        ConfigSnapshot first = new ConfigSnapshot(properties("one", "1", "two", "2", "three", "3"));
+        ConfigSnapshot second = new ConfigSnapshot(properties("three", "3", "one", "1", "two", "2"));
+
+        assertThat(first.getFingerprint(), hasLength(32));
+        assertThat(first.getFingerprint(), equalTo(second.getFingerprint()));
+        assertThat(first, equalTo(second));
+        assertThat(first.diff(second), empty());
+    }
+
+    @Test
+    public void test_fingerprint_differs_on_key_value_shift() {
+        ConfigSnapshot first = new ConfigSnapshot(properties("ab", "c"));
+        ConfigSnapshot second = new ConfigSnapshot(properties("a", "bc"));
+
+        assertThat(first.getFingerprint(), not(equalTo(second.getFingerprint())));
+        assertThat(first, not(equalTo(second)));
+    }
+
+    @Test
+    public void test_diff_returns_only_differing_properties() {
+        ConfigSnapshot first = new ConfigSnapshot(properties("same", "1", "changed", "2", "removed", "3"));
+        ConfigSnapshot second = new ConfigSnapshot(properties("same", "1", "changed", "4", "added", "5"));
+
+        List<ConfigSnapshot.Difference> diff = first.diff(second);
+        assertThat(diff, hasSize(3));
+
+        assertThat(diff.get(0).getKey(), equalTo("added"));
+        assertThat(diff.get(0).getValue(), nullValue());
+        assertThat(diff.get(0).getOtherValue(), equalTo("5"));
+
+        assertThat(diff.get(1).getKey(), equalTo("changed"));
+        assertThat(diff.get(1).getValue(), equalTo("2"));
+        assertThat(diff.get(1).getOtherValue(), equalTo("4"));
+
+        assertThat(diff.get(2).getKey(), equalTo("removed"));
+        assertThat(diff.get(2).getValue(), equalTo("3"));
+        assertThat(diff.get(2).getOtherValue(), nullValue());
+    }
+
+    @Test
+    public void test_snapshot_key_filter() {
+        Properties props = properties("app.one", "1", "app.two", "2", "HOSTNAME", "node-1");
+        ConfigSnapshot first = new ConfigSnapshot(props, key -> key.startsWith("app."));
+        props.setProperty("HOSTNAME", "node-2");
+        ConfigSnapshot second = new ConfigSnapshot(props, key -> key.startsWith("app."));
+
+        assertThat(first.getValues().keySet(), containsInAnyOrder("app.one", "app.two"));
+        assertThat(first.getFingerprint(), equalTo(second.getFingerprint()));
+    }
+
+    @Test
+    public void test_difference_does_not_print_values() {
+        ConfigSnapshot first = new ConfigSnapshot(properties("password", "my secret", "removed", "my removed secret"));
+        ConfigSnapshot second = new ConfigSnapshot(properties("password", "my new secret", "added", "my added secret"));
+
+        String diff = first.diff(second).toString();
+        assertThat(diff, equalTo("[added: added, password: changed, removed: removed]"));
+    }
+}